@@ -6,6 +6,7 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboardMar
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardButton;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardRow;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
@@ -14,7 +15,6 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.format.TextStyle;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class BirthdayBot extends TelegramLongPollingBot {
     private final BirthdayDatabase database;
@@ -25,12 +25,14 @@ public class BirthdayBot extends TelegramLongPollingBot {
     private static final String DELETE_BIRTHDAY = "➖ Удалить день рождения";
     private static final String CHECK_TODAY = "🎂 Сегодняшние дни рождения";
     private static final String LIST_ALL = "📅 Все дни рождения";
+    private static final String SETTINGS = "⚙️ Напоминания";
     private static final String HELP = "❓ Помощь";
     private static final String CANCEL = "❌ Отмена";
 
     // Состояния
     private static final String STATE_ADD = "ADD";
     private static final String STATE_DELETE = "DELETE";
+    private static final String STATE_SETTINGS = "SETTINGS";
     private final Map<Long, String> userStates = new HashMap<>();
 
     public BirthdayBot() {
@@ -42,6 +44,10 @@ public class BirthdayBot extends TelegramLongPollingBot {
 
     @Override
     public void onUpdateReceived(Update update) {
+        if (update.hasMessage()) {
+            restoreArchivedChat(update.getMessage().getChatId());
+        }
+
         if (update.hasMessage() && update.getMessage().hasText()) {
             long chatId = update.getMessage().getChatId();
             String messageText = update.getMessage().getText();
@@ -68,6 +74,16 @@ public class BirthdayBot extends TelegramLongPollingBot {
         }
     }
 
+    private void restoreArchivedChat(long chatId) {
+        try {
+            if (database.restoreChat(chatId)) {
+                System.out.println("Чат " + chatId + " восстановлен из архива");
+            }
+        } catch (SQLException e) {
+            System.err.println("Ошибка восстановления чата " + chatId + ": " + e.getMessage());
+        }
+    }
+
     private void handleUserState(long chatId, String state, String input) throws SQLException {
         switch (state) {
             case STATE_ADD:
@@ -76,6 +92,9 @@ public class BirthdayBot extends TelegramLongPollingBot {
             case STATE_DELETE:
                 processDeleteBirthday(chatId, input);
                 break;
+            case STATE_SETTINGS:
+                processSettings(chatId, input);
+                break;
         }
         userStates.remove(chatId);
         showMainMenu(chatId);
@@ -95,6 +114,9 @@ public class BirthdayBot extends TelegramLongPollingBot {
             case LIST_ALL:
                 showAllBirthdays(chatId);
                 break;
+            case SETTINGS:
+                prepareSettings(chatId);
+                break;
             case HELP:
                 showHelp(chatId);
                 break;
@@ -129,7 +151,7 @@ public class BirthdayBot extends TelegramLongPollingBot {
             LocalDate birthDate = LocalDate.parse(dateStr, dateFormatter);
             database.addBirthday(lastName, firstName, middleName, birthDate, chatId);
 
-            sendMessage(chatId, "✅ Добавлен: " + formatName(lastName, firstName, middleName) +
+            sendMessage(chatId, "✅ Добавлен: " + BirthdayDatabase.formatName(lastName, firstName, middleName) +
                     " - " + birthDate.format(dateFormatter));
         } catch (DateTimeParseException e) {
             sendMessage(chatId, "❌ Ошибка формата даты. Используйте дд.мм.гггг");
@@ -140,7 +162,7 @@ public class BirthdayBot extends TelegramLongPollingBot {
         userStates.put(chatId, STATE_DELETE);
 
         try {
-            List<BirthdayDatabase.BirthdayRecord> records = database.getAllBirthdays(chatId);
+            BirthdayTable records = database.getBirthdayTable(chatId);
             if (records.isEmpty()) {
                 sendMessage(chatId, "Нет записей для удаления");
                 userStates.remove(chatId);
@@ -155,7 +177,8 @@ public class BirthdayBot extends TelegramLongPollingBot {
             List<KeyboardRow> rows = new ArrayList<>();
 
             // Добавляем кнопки для каждой записи
-            for (BirthdayDatabase.BirthdayRecord record : records) {
+            BirthdayTable.Cursor record = records.cursor();
+            while (record.next()) {
                 KeyboardRow row = new KeyboardRow();
                 row.add(new KeyboardButton(record.getFullName()));
                 rows.add(row);
@@ -189,12 +212,36 @@ public class BirthdayBot extends TelegramLongPollingBot {
         String middleName = parts.length > 2 ? parts[2] : null;
 
         if (database.deleteBirthday(lastName, firstName, middleName, chatId)) {
-            sendMessage(chatId, "✅ Удален: " + formatName(lastName, firstName, middleName));
+            sendMessage(chatId, "✅ Удален: " + BirthdayDatabase.formatName(lastName, firstName, middleName));
         } else {
             sendMessage(chatId, "❌ Запись не найдена");
         }
     }
 
+    private void prepareSettings(long chatId) throws SQLException {
+        userStates.put(chatId, STATE_SETTINGS);
+        ReminderSettings settings = database.getReminderSettings(chatId);
+
+        SendMessage message = new SendMessage();
+        message.setChatId(String.valueOf(chatId));
+        message.setText("Текущие настройки: " + settings +
+                "\n\nНапоминания приходят в " + ReminderSettings.REMINDER_TIME + " по времени сервера. " +
+                "Тихие часы, которые захватывают это время, переносят отправку на их конец в тот же день." +
+                "\n\nВведите дни через запятую и, при необходимости, тихие часы:\n0,1,14,30 8-10\n\nИли нажмите ❌ Отмена");
+        showCancelKeyboard(message);
+        executeMessage(message);
+    }
+
+    private void processSettings(long chatId, String input) throws SQLException {
+        try {
+            ReminderSettings settings = ReminderSettings.parse(input);
+            database.setReminderSettings(chatId, settings);
+            sendMessage(chatId, "✅ Напоминания: " + settings);
+        } catch (IllegalArgumentException e) {
+            sendMessage(chatId, "❌ " + e.getMessage());
+        }
+    }
+
     private void showTodayBirthdays(long chatId) throws SQLException {
         List<String> birthdays = database.getBirthdaysByDate(LocalDate.now());
 
@@ -208,33 +255,30 @@ public class BirthdayBot extends TelegramLongPollingBot {
     }
 
     private void showAllBirthdays(long chatId) throws SQLException {
-        List<BirthdayDatabase.BirthdayRecord> records = database.getAllBirthdays(chatId);
+        BirthdayTable records = database.getBirthdayTable(chatId);
 
         if (records.isEmpty()) {
             sendMessage(chatId, "В базе нет записей о днях рождения");
             return;
         }
 
-        Map<Month, List<BirthdayDatabase.BirthdayRecord>> byMonth = records.stream()
-                .collect(Collectors.groupingBy(
-                        r -> r.getBirthDate().getMonth(),
-                        TreeMap::new,
-                        Collectors.toList()
-                ));
+        // Строки сразу пишутся в текст своего месяца, без промежуточных объектов на каждую запись
+        Map<Month, StringBuilder> byMonth = new EnumMap<>(Month.class);
+        BirthdayTable.Cursor record = records.cursor();
+        while (record.next()) {
+            byMonth.computeIfAbsent(record.getMonth(), month -> new StringBuilder())
+                    .append("• ").append(record.getFormattedDate())
+                    .append(" - ").append(record.getFullName())
+                    .append("\n");
+        }
 
         StringBuilder sb = new StringBuilder("📅 Все дни рождения:\n\n");
 
         byMonth.forEach((month, monthRecords) -> {
             sb.append("🗓 ").append(month.getDisplayName(TextStyle.FULL_STANDALONE, Locale.forLanguageTag("ru")))
-                    .append(":\n");
-
-            monthRecords.forEach(record ->
-                    sb.append("• ").append(record.getFormattedDate())
-                            .append(" - ").append(record.getFullName())
-                            .append("\n")
-            );
-
-            sb.append("\n");
+                    .append(":\n")
+                    .append(monthRecords)
+                    .append("\n");
         });
 
         sendMessage(chatId, sb.toString());
@@ -248,10 +292,14 @@ public class BirthdayBot extends TelegramLongPollingBot {
                 1. Добавить день рождения - вводите ФИО и дату
                 2. Удалить - выбираете из списка
                 3. Просматривайте дни рождения
+                4. Напоминания - за сколько дней напоминать и тихие часы
+                
+                Напоминания приходят в %s по времени сервера. Тихие часы влияют только на это время: \
+                если они его захватывают, отправка переносится на конец тихих часов в тот же день.
                 
                 <b>Формат даты:</b> дд.мм.гггг (например 15.08.1990)
                 
-                Данные хранятся в вашей личной базе""";
+                Данные хранятся в вашей личной базе""".formatted(ReminderSettings.REMINDER_TIME);
 
         SendMessage message = new SendMessage();
         message.setChatId(String.valueOf(chatId));
@@ -280,6 +328,7 @@ public class BirthdayBot extends TelegramLongPollingBot {
 
         // Третья строка
         KeyboardRow row3 = new KeyboardRow();
+        row3.add(new KeyboardButton(SETTINGS));
         row3.add(new KeyboardButton(HELP));
 
         rows.add(row1);
@@ -304,10 +353,6 @@ public class BirthdayBot extends TelegramLongPollingBot {
         message.setReplyMarkup(keyboard);
     }
 
-    private String formatName(String lastName, String firstName, String middleName) {
-        return lastName + " " + firstName + (middleName != null ? " " + middleName : "");
-    }
-
     public void sendMessage(long chatId, String text) {
         SendMessage message = new SendMessage();
         message.setChatId(String.valueOf(chatId));
@@ -319,6 +364,48 @@ public class BirthdayBot extends TelegramLongPollingBot {
         }
     }
 
+    // Отправка напоминания с учетом результата доставки для обнаружения "мертвых" чатов
+    public void sendReminder(long chatId, String text) {
+        SendMessage message = new SendMessage();
+        message.setChatId(String.valueOf(chatId));
+        message.setText(text);
+        try {
+            execute(message);
+            database.recordDeliverySuccess(chatId);
+        } catch (TelegramApiException e) {
+            System.err.println("Ошибка отправки напоминания в чат " + chatId + ": " + e.getMessage());
+            if (isPermanentFailure(e)) {
+                recordDeliveryFailure(chatId);
+            }
+        } catch (SQLException e) {
+            System.err.println("Ошибка сохранения статуса доставки: " + e.getMessage());
+        }
+    }
+
+    private void recordDeliveryFailure(long chatId) {
+        try {
+            if (database.recordDeliveryFailure(chatId)) {
+                System.out.println("Чат " + chatId + " перенесен в архив");
+            }
+        } catch (SQLException e) {
+            System.err.println("Ошибка сохранения статуса доставки: " + e.getMessage());
+        }
+    }
+
+    // 403 - бот заблокирован или удален из чата, 400 "chat not found" - чата больше нет
+    private static boolean isPermanentFailure(TelegramApiException e) {
+        if (!(e instanceof TelegramApiRequestException requestException)) {
+            return false;
+        }
+        Integer errorCode = requestException.getErrorCode();
+        if (errorCode == null) {
+            return false;
+        }
+        String response = requestException.getApiResponse();
+        return errorCode == 403 ||
+                (errorCode == 400 && response != null && response.contains("chat not found"));
+    }
+
     private void sendError(long chatId, Exception e) {
         sendMessage(chatId, "⚠️ Ошибка: " + e.getMessage());
         showMainMenu(chatId);
@@ -2,12 +2,16 @@ package my.ru;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class BirthdayDatabase {
     private static final String DB_URL = "jdbc:sqlite:birthdays.db";
     private static final DateTimeFormatter DB_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    static final DateTimeFormatter DISPLAY_DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
 
     private static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS birthdays (" +
             "id INTEGER PRIMARY KEY," +
@@ -17,14 +21,70 @@ public class BirthdayDatabase {
             "birth_date TEXT NOT NULL," +
             "chat_id INTEGER NOT NULL)";
 
+    // Холодный архив записей чатов, где бот заблокирован или удален
+    private static final String CREATE_ARCHIVE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS birthdays_archive (" +
+            "id INTEGER PRIMARY KEY," +
+            "last_name TEXT NOT NULL," +
+            "first_name TEXT NOT NULL," +
+            "middle_name TEXT," +
+            "birth_date TEXT NOT NULL," +
+            "chat_id INTEGER NOT NULL)";
+
+    // Активные чаты и счетчик ошибок доставки; рассылку ведет очередь reminders
+    private static final String CREATE_CHATS_TABLE_SQL = "CREATE TABLE IF NOT EXISTS chats (" +
+            "chat_id INTEGER PRIMARY KEY," +
+            "delivery_failures INTEGER NOT NULL DEFAULT 0," +
+            "last_failure_day INTEGER)";
+
+    // Настройки напоминаний; чаты без строки здесь используют ReminderSettings.DEFAULT
+    private static final String CREATE_SETTINGS_TABLE_SQL = "CREATE TABLE IF NOT EXISTS chat_settings (" +
+            "chat_id INTEGER PRIMARY KEY," +
+            "reminder_offsets TEXT NOT NULL," +
+            "quiet_start INTEGER NOT NULL DEFAULT -1," +
+            "quiet_end INTEGER NOT NULL DEFAULT -1)";
+
+    // Очередь ближайших напоминаний: одна строка на запись и смещение, упорядочена индексом по fire_at
+    private static final String CREATE_REMINDERS_TABLE_SQL = "CREATE TABLE IF NOT EXISTS reminders (" +
+            "birthday_id INTEGER NOT NULL," +
+            "offset_days INTEGER NOT NULL," +
+            "chat_id INTEGER NOT NULL," +
+            "occurrence_day INTEGER NOT NULL," +
+            "fire_at INTEGER NOT NULL," +
+            "PRIMARY KEY (birthday_id, offset_days))";
+
+    // Сколько дней подряд с постоянной ошибкой доставки переводят чат в архив;
+    // за один день считается не больше одной ошибки, сколько бы сообщений ни ушло в чат
+    private static final int MAX_DELIVERY_FAILURES = Integer.getInteger("birthdays.maxDeliveryFailures", 3);
+
+    private volatile Runnable queueListener = () -> { };
+
     public BirthdayDatabase() {
         initializeDatabase();
     }
 
+    // Вызывается после изменений очереди напоминаний, чтобы планировщик мог проснуться раньше
+    public void setQueueListener(Runnable queueListener) {
+        this.queueListener = queueListener;
+    }
+
     private void initializeDatabase() {
         try (Connection conn = DriverManager.getConnection(DB_URL);
              Statement stmt = conn.createStatement()) {
             stmt.execute(CREATE_TABLE_SQL);
+            stmt.execute(CREATE_ARCHIVE_TABLE_SQL);
+            stmt.execute(CREATE_CHATS_TABLE_SQL);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_birthdays_chat_id ON birthdays(chat_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_birthdays_archive_chat_id ON birthdays_archive(chat_id)");
+            // Заполнение списка чатов для баз, созданных до его появления
+            stmt.execute("INSERT OR IGNORE INTO chats(chat_id) SELECT DISTINCT chat_id FROM birthdays");
+            stmt.execute(CREATE_SETTINGS_TABLE_SQL);
+            stmt.execute(CREATE_REMINDERS_TABLE_SQL);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_reminders_fire_at ON reminders(fire_at)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_reminders_chat_id ON reminders(chat_id)");
+            // Строки очереди без записи (например, после сбоя старой версии) удаляются при старте
+            stmt.execute("DELETE FROM reminders WHERE NOT EXISTS " +
+                    "(SELECT 1 FROM birthdays b WHERE b.id = reminders.birthday_id)");
+            armMissingReminders(conn);
         } catch (SQLException e) {
             System.err.println("Error initializing database: " + e.getMessage());
         }
@@ -35,13 +95,53 @@ public class BirthdayDatabase {
         String sql = "INSERT INTO birthdays(last_name, first_name, middle_name, birth_date, chat_id) " +
                 "VALUES(?, ?, ?, ?, ?)";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, lastName);
-            pstmt.setString(2, firstName);
-            pstmt.setString(3, middleName);
-            pstmt.setString(4, birthDate.format(DB_DATE_FORMAT));
-            pstmt.setLong(5, chatId);
+        // Запись, ее напоминания и регистрация чата - одна транзакция
+        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, lastName);
+                pstmt.setString(2, firstName);
+                pstmt.setString(3, middleName);
+                pstmt.setString(4, birthDate.format(DB_DATE_FORMAT));
+                pstmt.setLong(5, chatId);
+                pstmt.executeUpdate();
+
+                long birthdayId;
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+                    rs.next();
+                    birthdayId = rs.getLong(1);
+                }
+                armReminders(conn, birthdayId, chatId, birthDate, getReminderSettings(conn, chatId),
+                        Instant.now().getEpochSecond());
+                registerChat(conn, chatId);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        queueListener.run();
+    }
+
+    private void registerChat(Connection conn, long chatId) throws SQLException {
+        String sql = "INSERT OR IGNORE INTO chats(chat_id) VALUES(?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, chatId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private void unregisterChatIfEmpty(Connection conn, long chatId) throws SQLException {
+        String sql = "DELETE FROM chats WHERE chat_id = ? " +
+                "AND NOT EXISTS (SELECT 1 FROM birthdays WHERE chat_id = ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, chatId);
+            pstmt.setLong(2, chatId);
             pstmt.executeUpdate();
         }
     }
@@ -54,17 +154,32 @@ public class BirthdayDatabase {
                 "(middle_name = ? OR (middle_name IS NULL AND ? IS NULL)) AND " +
                 "chat_id = ?";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, lastName);
-            pstmt.setString(2, firstName);
-            pstmt.setString(3, middleName);
-            pstmt.setString(4, middleName);
-            pstmt.setLong(5, chatId);
+        // Запись и ее напоминания удаляются вместе, иначе в очереди остаются строки без записи
+        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, lastName);
+                pstmt.setString(2, firstName);
+                pstmt.setString(3, middleName);
+                pstmt.setString(4, middleName);
+                pstmt.setLong(5, chatId);
 
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+                int affectedRows = pstmt.executeUpdate();
+                if (affectedRows == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                deleteOrphanReminders(conn, chatId);
+                unregisterChatIfEmpty(conn, chatId);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
+        return true;
     }
 
     public List<String> getBirthdaysByDate(LocalDate date) throws SQLException {
@@ -83,15 +198,21 @@ public class BirthdayDatabase {
                 String firstName = rs.getString("first_name");
                 String middleName = rs.getString("middle_name");
 
-                names.add(buildFullName(lastName, firstName, middleName));
+                names.add(formatName(lastName, firstName, middleName));
             }
         }
         return names;
     }
 
     public List<BirthdayRecord> getAllBirthdays(long chatId) throws SQLException {
-        List<BirthdayRecord> birthdays = new ArrayList<>();
-        String sql = "SELECT last_name, first_name, middle_name, birth_date " +
+        return getBirthdayTable(chatId).asRecords();
+    }
+
+    public BirthdayTable getBirthdayTable(long chatId) throws SQLException {
+        BirthdayTable table = new BirthdayTable();
+        // Дата переводится в epoch-day прямо в SQLite, без LocalDate.parse на каждую строку
+        String sql = "SELECT last_name, first_name, middle_name, " +
+                "CAST(julianday(birth_date) - 2440587.5 AS INTEGER) AS epoch_day " +
                 "FROM birthdays WHERE chat_id = ? ORDER BY birth_date";
 
         try (Connection conn = DriverManager.getConnection(DB_URL);
@@ -100,19 +221,10 @@ public class BirthdayDatabase {
 
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
-                String lastName = rs.getString("last_name");
-                String firstName = rs.getString("first_name");
-                String middleName = rs.getString("middle_name");
-                LocalDate birthDate = LocalDate.parse(rs.getString("birth_date"), DB_DATE_FORMAT);
-
-                birthdays.add(new BirthdayRecord(lastName, firstName, middleName, birthDate));
+                table.add(rs.getString(1), rs.getString(2), rs.getString(3), rs.getInt(4));
             }
         }
-        return birthdays;
-    }
-
-    private String buildFullName(String lastName, String firstName, String middleName) {
-        return lastName + " " + firstName + (middleName != null ? " " + middleName : "");
+        return table;
     }
 
     public static class BirthdayRecord {
@@ -120,8 +232,6 @@ public class BirthdayDatabase {
         private final String firstName;
         private final String middleName;
         private final LocalDate birthDate;
-        private final DateTimeFormatter displayDateFormatter =
-                DateTimeFormatter.ofPattern("dd.MM.yyyy");
 
         public BirthdayRecord(String lastName, String firstName,
                               String middleName, LocalDate birthDate) {
@@ -132,12 +242,11 @@ public class BirthdayDatabase {
         }
 
         public String getFullName() {
-            return lastName + " " + firstName +
-                    (middleName != null ? " " + middleName : "");
+            return formatName(lastName, firstName, middleName);
         }
 
         public String getFormattedDate() {
-            return birthDate.format(displayDateFormatter);
+            return birthDate.format(DISPLAY_DATE_FORMAT);
         }
 
         public LocalDate getBirthDate() {
@@ -145,45 +254,329 @@ public class BirthdayDatabase {
         }
     }
 
-    public List<Long> getAllChatIds() throws SQLException {
-        List<Long> chatIds = new ArrayList<>();
-        String sql = "SELECT DISTINCT chat_id FROM birthdays";
+    public void recordDeliverySuccess(long chatId) throws SQLException {
+        String sql = "UPDATE chats SET delivery_failures = 0, last_failure_day = NULL " +
+                "WHERE chat_id = ? AND delivery_failures > 0";
+
+        try (Connection conn = DriverManager.getConnection(DB_URL);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, chatId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Возвращает true, если после этой ошибки чат был перенесен в архив
+    public boolean recordDeliveryFailure(long chatId) throws SQLException {
+        String sql = "UPDATE chats SET delivery_failures = delivery_failures + 1, last_failure_day = ? " +
+                "WHERE chat_id = ? AND (last_failure_day IS NULL OR last_failure_day <> ?)";
+        String countSql = "SELECT delivery_failures FROM chats WHERE chat_id = ?";
+        long today = LocalDate.now().toEpochDay();
+
+        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setLong(1, today);
+                pstmt.setLong(2, chatId);
+                pstmt.setLong(3, today);
+                // Ошибка за сегодня уже учтена
+                if (pstmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(countSql)) {
+                pstmt.setLong(1, chatId);
+                ResultSet rs = pstmt.executeQuery();
+                if (!rs.next() || rs.getInt(1) < MAX_DELIVERY_FAILURES) {
+                    return false;
+                }
+            }
+
+            moveChat(conn, chatId, "birthdays", "birthdays_archive");
+            return true;
+        }
+    }
+
+    // Возвращает записи чата из архива; вызывается при любом сообщении от чата
+    public boolean restoreChat(long chatId) throws SQLException {
+        String sql = "SELECT 1 FROM birthdays_archive WHERE chat_id = ? LIMIT 1";
+
+        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setLong(1, chatId);
+                if (!pstmt.executeQuery().next()) {
+                    return false;
+                }
+            }
+
+            moveChat(conn, chatId, "birthdays_archive", "birthdays");
+        }
+        queueListener.run();
+        return true;
+    }
+
+    public ReminderSettings getReminderSettings(long chatId) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+            return getReminderSettings(conn, chatId);
+        }
+    }
+
+    private ReminderSettings getReminderSettings(Connection conn, long chatId) throws SQLException {
+        String sql = "SELECT reminder_offsets, quiet_start, quiet_end FROM chat_settings WHERE chat_id = ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, chatId);
+            ResultSet rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                return ReminderSettings.DEFAULT;
+            }
+            return ReminderSettings.fromDatabase(rs.getString(1), rs.getInt(2), rs.getInt(3));
+        }
+    }
+
+    // Сохраняет настройки и перестраивает очередь только для этого чата
+    public void setReminderSettings(long chatId, ReminderSettings settings) throws SQLException {
+        String sql = "INSERT OR REPLACE INTO chat_settings(chat_id, reminder_offsets, quiet_start, quiet_end) " +
+                "VALUES(?, ?, ?, ?)";
+
+        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setLong(1, chatId);
+                pstmt.setString(2, settings.offsetsToString());
+                pstmt.setInt(3, settings.getQuietStart());
+                pstmt.setInt(4, settings.getQuietEnd());
+                pstmt.executeUpdate();
+                rebuildReminders(conn, chatId, settings);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        queueListener.run();
+    }
+
+    // Время ближайшего напоминания в секундах epoch или -1, если очередь пуста.
+    // Берется с тем же JOIN по birthdays, что и в getDueReminders: строка без записи
+    // никогда не станет "наступившей" и не должна будить планировщик
+    public long getNextFireTime() throws SQLException {
+        String sql = "SELECT r.fire_at FROM reminders r JOIN birthdays b ON b.id = r.birthday_id " +
+                "ORDER BY r.fire_at LIMIT 1";
 
         try (Connection conn = DriverManager.getConnection(DB_URL);
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : -1;
+        }
+    }
+
+    public List<DueReminder> getDueReminders(long nowEpochSecond) throws SQLException {
+        List<DueReminder> reminders = new ArrayList<>();
+        String sql = "SELECT r.birthday_id, r.offset_days, r.chat_id, r.occurrence_day, " +
+                "b.last_name, b.first_name, b.middle_name, " +
+                "CAST(julianday(b.birth_date) - 2440587.5 AS INTEGER) AS epoch_day " +
+                "FROM reminders r JOIN birthdays b ON b.id = r.birthday_id " +
+                "WHERE r.fire_at <= ? ORDER BY r.fire_at";
+
+        try (Connection conn = DriverManager.getConnection(DB_URL);
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, nowEpochSecond);
 
+            ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
-                chatIds.add(rs.getLong("chat_id"));
+                reminders.add(new DueReminder(rs.getLong(1), rs.getInt(2), rs.getLong(3),
+                        LocalDate.ofEpochDay(rs.getLong(4)),
+                        formatName(rs.getString(5), rs.getString(6), rs.getString(7)),
+                        LocalDate.ofEpochDay(rs.getLong(8))));
             }
         }
-        return chatIds;
+        return reminders;
     }
 
-    public List<String> getBirthdaysByDateForChat(LocalDate date, long chatId) throws SQLException {
-        List<String> names = new ArrayList<>();
-        String sql = "SELECT last_name, first_name, middle_name FROM birthdays " +
-                "WHERE strftime('%m-%d', birth_date) = ? AND chat_id = ?";
+    // Переносит сработавшие напоминания на следующий год
+    public void rearmReminders(List<DueReminder> reminders, long nowEpochSecond) throws SQLException {
+        String sql = "UPDATE reminders SET occurrence_day = ?, fire_at = ? " +
+                "WHERE birthday_id = ? AND offset_days = ?";
+        Map<Long, ReminderSettings> settingsByChat = new HashMap<>();
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DriverManager.getConnection(DB_URL)) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (DueReminder reminder : reminders) {
+                    ReminderSettings settings = settingsByChat.get(reminder.getChatId());
+                    if (settings == null) {
+                        settings = getReminderSettings(conn, reminder.getChatId());
+                        settingsByChat.put(reminder.getChatId(), settings);
+                    }
+                    LocalDate occurrence = settings.nextOccurrence(
+                            reminder.getBirthDate(), reminder.getOffsetDays(), nowEpochSecond);
+                    pstmt.setLong(1, occurrence.toEpochDay());
+                    pstmt.setLong(2, settings.fireTime(occurrence, reminder.getOffsetDays()));
+                    pstmt.setLong(3, reminder.getBirthdayId());
+                    pstmt.setInt(4, reminder.getOffsetDays());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
 
-            String monthDay = String.format("%02d-%02d", date.getMonthValue(), date.getDayOfMonth());
-            pstmt.setString(1, monthDay);
-            pstmt.setLong(2, chatId);
+    private void armReminders(Connection conn, long birthdayId, long chatId, LocalDate birthDate,
+                              ReminderSettings settings, long nowEpochSecond) throws SQLException {
+        String sql = "INSERT OR REPLACE INTO reminders(birthday_id, offset_days, chat_id, occurrence_day, fire_at) " +
+                "VALUES(?, ?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int offset : settings.getOffsets()) {
+                LocalDate occurrence = settings.nextOccurrence(birthDate, offset, nowEpochSecond);
+                pstmt.setLong(1, birthdayId);
+                pstmt.setInt(2, offset);
+                pstmt.setLong(3, chatId);
+                pstmt.setLong(4, occurrence.toEpochDay());
+                pstmt.setLong(5, settings.fireTime(occurrence, offset));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private void rebuildReminders(Connection conn, long chatId, ReminderSettings settings) throws SQLException {
+        String sql = "SELECT id, CAST(julianday(birth_date) - 2440587.5 AS INTEGER) FROM birthdays WHERE chat_id = ?";
+        long now = Instant.now().getEpochSecond();
 
+        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM reminders WHERE chat_id = ?")) {
+            delete.setLong(1, chatId);
+            delete.executeUpdate();
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, chatId);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
-                String lastName = rs.getString("last_name");
-                String firstName = rs.getString("first_name");
-                String middleName = rs.getString("middle_name");
-                names.add(formatName(lastName, firstName, middleName));
+                armReminders(conn, rs.getLong(1), chatId, LocalDate.ofEpochDay(rs.getLong(2)), settings, now);
             }
         }
-        return names;
     }
 
-    private String formatName(String lastName, String firstName, String middleName) {
+    // Ставит в очередь записи, добавленные до появления очереди напоминаний
+    private void armMissingReminders(Connection conn) throws SQLException {
+        String sql = "SELECT b.id, b.chat_id, CAST(julianday(b.birth_date) - 2440587.5 AS INTEGER) " +
+                "FROM birthdays b WHERE NOT EXISTS (SELECT 1 FROM reminders r WHERE r.birthday_id = b.id)";
+        Map<Long, ReminderSettings> settingsByChat = new HashMap<>();
+        long now = Instant.now().getEpochSecond();
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                long chatId = rs.getLong(2);
+                ReminderSettings settings = settingsByChat.get(chatId);
+                if (settings == null) {
+                    settings = getReminderSettings(conn, chatId);
+                    settingsByChat.put(chatId, settings);
+                }
+                armReminders(conn, rs.getLong(1), chatId, LocalDate.ofEpochDay(rs.getLong(3)), settings, now);
+            }
+        }
+    }
+
+    private void deleteOrphanReminders(Connection conn, long chatId) throws SQLException {
+        String sql = "DELETE FROM reminders WHERE chat_id = ? " +
+                "AND birthday_id NOT IN (SELECT id FROM birthdays WHERE chat_id = ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, chatId);
+            pstmt.setLong(2, chatId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private void moveChat(Connection conn, long chatId, String from, String to) throws SQLException {
+        String copySql = "INSERT INTO " + to + "(last_name, first_name, middle_name, birth_date, chat_id) " +
+                "SELECT last_name, first_name, middle_name, birth_date, chat_id FROM " + from + " WHERE chat_id = ?";
+        String deleteSql = "DELETE FROM " + from + " WHERE chat_id = ?";
+        String chatSql = to.equals("birthdays")
+                ? "INSERT OR REPLACE INTO chats(chat_id, delivery_failures) VALUES(?, 0)"
+                : "DELETE FROM chats WHERE chat_id = ?";
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement copy = conn.prepareStatement(copySql);
+             PreparedStatement delete = conn.prepareStatement(deleteSql);
+             PreparedStatement chat = conn.prepareStatement(chatSql)) {
+            copy.setLong(1, chatId);
+            copy.executeUpdate();
+            delete.setLong(1, chatId);
+            delete.executeUpdate();
+            chat.setLong(1, chatId);
+            chat.executeUpdate();
+            if (to.equals("birthdays")) {
+                rebuildReminders(conn, chatId, getReminderSettings(conn, chatId));
+            } else {
+                try (PreparedStatement reminders = conn.prepareStatement("DELETE FROM reminders WHERE chat_id = ?")) {
+                    reminders.setLong(1, chatId);
+                    reminders.executeUpdate();
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    public static class DueReminder {
+        private final long birthdayId;
+        private final int offsetDays;
+        private final long chatId;
+        private final LocalDate occurrence;
+        private final String fullName;
+        private final LocalDate birthDate;
+
+        public DueReminder(long birthdayId, int offsetDays, long chatId, LocalDate occurrence,
+                           String fullName, LocalDate birthDate) {
+            this.birthdayId = birthdayId;
+            this.offsetDays = offsetDays;
+            this.chatId = chatId;
+            this.occurrence = occurrence;
+            this.fullName = fullName;
+            this.birthDate = birthDate;
+        }
+
+        public long getBirthdayId() {
+            return birthdayId;
+        }
+
+        public int getOffsetDays() {
+            return offsetDays;
+        }
+
+        public long getChatId() {
+            return chatId;
+        }
+
+        // Дата дня рождения в году, к которому относится напоминание
+        public LocalDate getOccurrence() {
+            return occurrence;
+        }
+
+        public String getFullName() {
+            return fullName;
+        }
+
+        public LocalDate getBirthDate() {
+            return birthDate;
+        }
+    }
+
+    static String formatName(String lastName, String firstName, String middleName) {
         return lastName + " " + firstName + (middleName != null ? " " + middleName : "");
     }
 }
@@ -0,0 +1,149 @@
+package my.ru;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Компактный результат массового чтения: даты хранятся как epoch-day,
+// имена - как индексы в общем словаре без повторов
+public class BirthdayTable {
+    private static final int NO_NAME = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final NameDictionary names = new NameDictionary();
+    private int[] lastNames = new int[INITIAL_CAPACITY];
+    private int[] firstNames = new int[INITIAL_CAPACITY];
+    private int[] middleNames = new int[INITIAL_CAPACITY];
+    private int[] birthDays = new int[INITIAL_CAPACITY];
+    private int size;
+
+    void add(String lastName, String firstName, String middleName, int epochDay) {
+        if (size == birthDays.length) {
+            int capacity = size * 2;
+            lastNames = Arrays.copyOf(lastNames, capacity);
+            firstNames = Arrays.copyOf(firstNames, capacity);
+            middleNames = Arrays.copyOf(middleNames, capacity);
+            birthDays = Arrays.copyOf(birthDays, capacity);
+        }
+        lastNames[size] = names.indexOf(lastName);
+        firstNames[size] = names.indexOf(firstName);
+        middleNames[size] = middleName != null ? names.indexOf(middleName) : NO_NAME;
+        birthDays[size] = epochDay;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Адаптер для старого кода: BirthdayRecord создается только при обращении к элементу
+    public List<BirthdayDatabase.BirthdayRecord> asRecords() {
+        return new AbstractList<>() {
+            @Override
+            public BirthdayDatabase.BirthdayRecord get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                int middle = middleNames[index];
+                return new BirthdayDatabase.BirthdayRecord(
+                        names.get(lastNames[index]),
+                        names.get(firstNames[index]),
+                        middle != NO_NAME ? names.get(middle) : null,
+                        LocalDate.ofEpochDay(birthDays[index]));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Курсор-приспособленец: один объект на весь проход по таблице
+    public class Cursor {
+        private int row = -1;
+
+        public boolean next() {
+            if (row + 1 >= size) {
+                return false;
+            }
+            row++;
+            return true;
+        }
+
+        public void reset() {
+            row = -1;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public String getLastName() {
+            return names.get(lastNames[row]);
+        }
+
+        public String getFirstName() {
+            return names.get(firstNames[row]);
+        }
+
+        public String getMiddleName() {
+            int middle = middleNames[row];
+            return middle != NO_NAME ? names.get(middle) : null;
+        }
+
+        public int getEpochDay() {
+            return birthDays[row];
+        }
+
+        public LocalDate getBirthDate() {
+            return LocalDate.ofEpochDay(birthDays[row]);
+        }
+
+        public Month getMonth() {
+            return getBirthDate().getMonth();
+        }
+
+        public String getFullName() {
+            return BirthdayDatabase.formatName(getLastName(), getFirstName(), getMiddleName());
+        }
+
+        public String getFormattedDate() {
+            return getBirthDate().format(BirthdayDatabase.DISPLAY_DATE_FORMAT);
+        }
+    }
+
+    private static class NameDictionary {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private String[] values = new String[INITIAL_CAPACITY];
+        private int size;
+
+        int indexOf(String name) {
+            Integer index = indexes.get(name);
+            if (index != null) {
+                return index;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = name;
+            indexes.put(name, size);
+            return size++;
+        }
+
+        String get(int index) {
+            return values[index];
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package my.ru;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Планировщик спит до ближайшего события в очереди reminders и обрабатывает только наступившие
+public class ReminderScheduler {
+    // Страховочное пробуждение на случай перевода системных часов
+    private static final long MAX_SLEEP_SECONDS = TimeUnit.DAYS.toSeconds(1);
+    // Повтор после ошибки базы: ждать сутки нельзя, напоминания на сегодня устареют
+    private static final long RETRY_DELAY_SECONDS = TimeUnit.MINUTES.toSeconds(1);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM");
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final BirthdayBot bot;
+    private final BirthdayDatabase database;
+    private final Random random = new Random();
+
+    private ScheduledFuture<?> nextRun;
+    private long nextRunAt = Long.MAX_VALUE;
+
+    public ReminderScheduler(BirthdayBot bot) {
+        this.bot = bot;
+        this.database = bot.getDatabase();
+    }
+
+    public void start() {
+        database.setQueueListener(this::onQueueChanged);
+        scheduler.execute(this::fireDueReminders);
+    }
+
+    public void shutdown() {
+        // Отложенный запуск может быть через сутки: отменяем его, иначе shutdown() его дождется
+        synchronized (this) {
+            if (nextRun != null) {
+                nextRun.cancel(false);
+                nextRun = null;
+            }
+            scheduler.shutdown();
+        }
+        try {
+            if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Очередь изменилась: просыпаемся раньше, если новое событие ближе запланированного
+    private void onQueueChanged() {
+        try {
+            long fireAt = database.getNextFireTime();
+            synchronized (this) {
+                if (fireAt >= 0 && fireAt < nextRunAt) {
+                    scheduleAt(fireAt);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Ошибка чтения очереди напоминаний: " + e.getMessage());
+        }
+    }
+
+    private synchronized void scheduleAt(long fireAt) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        if (nextRun != null) {
+            nextRun.cancel(false);
+        }
+        long now = Instant.now().getEpochSecond();
+        long delay = Math.min(Math.max(fireAt - now, 0), MAX_SLEEP_SECONDS);
+        nextRunAt = now + delay;
+        nextRun = scheduler.schedule(this::fireDueReminders, delay, TimeUnit.SECONDS);
+    }
+
+    private void fireDueReminders() {
+        // Запуск начался: любое событие, добавленное во время обработки, должно перепланировать пробуждение
+        synchronized (this) {
+            nextRun = null;
+            nextRunAt = Long.MAX_VALUE;
+        }
+
+        long fireAt;
+        try {
+            long now = Instant.now().getEpochSecond();
+            List<BirthdayDatabase.DueReminder> due = database.getDueReminders(now);
+            if (!due.isEmpty()) {
+                // Сначала переносим на следующий год, потом отправляем: сбой после отправки
+                // не приведет к повторной рассылке тех же напоминаний
+                database.rearmReminders(due, now);
+                sendReminders(due, now);
+            }
+            long nextFireAt = database.getNextFireTime();
+            fireAt = nextFireAt >= 0 ? nextFireAt : Instant.now().getEpochSecond() + MAX_SLEEP_SECONDS;
+        } catch (Exception e) {
+            System.err.println("Ошибка при проверке дней рождения: " + e.getMessage());
+            fireAt = Instant.now().getEpochSecond() + RETRY_DELAY_SECONDS;
+        }
+
+        // fireAt мог быть прочитан до вставки из onQueueChanged: более раннее пробуждение не затираем
+        synchronized (this) {
+            if (fireAt < nextRunAt) {
+                scheduleAt(fireAt);
+            }
+        }
+    }
+
+    private void sendReminders(List<BirthdayDatabase.DueReminder> due, long now) {
+        LocalDate today = Instant.ofEpochSecond(now).atZone(ZoneId.systemDefault()).toLocalDate();
+
+        // Одно сообщение на чат и дату дня рождения; после простоя у одной записи может
+        // сработать несколько смещений сразу, поэтому имена собираются по id записи
+        Map<Long, TreeMap<LocalDate, Map<Long, String>>> byChat = new LinkedHashMap<>();
+        for (BirthdayDatabase.DueReminder reminder : due) {
+            // Бот был выключен дольше, чем до самого дня рождения - напоминание уже неактуально
+            if (reminder.getOccurrence().isBefore(today)) continue;
+
+            byChat.computeIfAbsent(reminder.getChatId(), id -> new TreeMap<>())
+                    .computeIfAbsent(reminder.getOccurrence(), date -> new LinkedHashMap<>())
+                    .putIfAbsent(reminder.getBirthdayId(), reminder.getFullName());
+        }
+
+        byChat.forEach((chatId, byDate) -> byDate.forEach((date, names) -> {
+            long daysLeft = ChronoUnit.DAYS.between(today, date);
+            StringBuilder message = new StringBuilder(getMessagePrefix(daysLeft));
+            if (daysLeft > 0) {
+                message.append(" (").append(date.format(DATE_FORMAT)).append(")");
+            }
+            message.append(":\n\n");
+
+            names.values().forEach(name -> message.append("• ").append(name).append("\n"));
+
+            if (daysLeft == 0) {
+                message.append("\n").append(getRandomCongratulation());
+            }
+
+            bot.sendReminder(chatId, message.toString());
+        }));
+    }
+
+    private static String getMessagePrefix(long daysLeft) {
+        if (daysLeft == 0) {
+            return "🎉 Сегодня день рождения у";
+        }
+        if (daysLeft == 1) {
+            return "⏳ Завтра день рождения у";
+        }
+        if (daysLeft == 7) {
+            return "🗓 Через неделю день рождения у";
+        }
+        return "⏳ Через " + daysLeft + " " + pluralDays(daysLeft) + " день рождения у";
+    }
+
+    private static String pluralDays(long days) {
+        long mod100 = days % 100;
+        long mod10 = days % 10;
+        if (mod100 >= 11 && mod100 <= 14) return "дней";
+        if (mod10 == 1) return "день";
+        if (mod10 >= 2 && mod10 <= 4) return "дня";
+        return "дней";
+    }
+
+    private String getRandomCongratulation() {
+        String[] congrats = {
+                "Пусть этот день будет наполнен радостью и смехом!",
+                "Желаем счастья, здоровья и успехов во всех начинаниях!",
+                " Желаю исполнения всех желаний! ",
+                " Пусть жизнь будет сладкой, как торт! ",
+                " Солнечного настроения круглый год! ",
+                " Пусть удача всегда будет рядом! ",
+                " Крепкого здоровья и бодрости духа! ",
+                " Пусть сбудутся даже самые смелые мечты! ",
+                " Тепла в доме и гармонии в семье! ",
+                " Ярких впечатлений и незабываемых моментов! ",
+                " Легкости на жизненном пути! ",
+                " Пусть ангел-хранитель всегда оберегает! ",
+                " Улыбок, смеха и детского восторга! ",
+                " Пусть сердце будет открыто для чудес! ",
+                " Желаю стабильности и уверенности! ",
+                " Пусть счастье не знает границ! ",
+                " Желаю жить легко и радостно! ",
+                " Пусть сбываются даже несбыточные мечты! ",
+                " Пусть каждый день будет праздником! ",
+                " Успехов во всех начинаниях! ",
+                " Пусть жизнь будет вкусной, как торт! ",
+                " Желаю душевного тепла и уюта! ",
+                " Крепких нервов и стального здоровья! ",
+                " Легкого пути к своей мечте! ",
+                " Желаю ценить каждый момент! ",
+                " Крепкого чая и мягкого пледа! ",
+                " Желаю всегда верить в лучшее! ",
+                " Пусть фортуна будет на твоей стороне! ",
+                " Желаю простого человеческого счастья! ",
+                " Теплых встреч и добрых людей вокруг! ",
+                " Пусть сердце поет от радости! ",
+                " Легкого парения по жизни! ",
+                " Желаю жить в гармонии с собой! ",
+                " Пусть каждый день приносит подарки! ",
+                " Желаю оставаться молодым душой! ",
+                " Пусть мечты становятся реальностью! ",
+                "Пусть сбудутся все мечты и желания в этот особенный день!"
+        };
+        return congrats[random.nextInt(congrats.length)];
+    }
+}
@@ -0,0 +1,148 @@
+package my.ru;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.MonthDay;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+// Настройки напоминаний чата: за сколько дней напоминать и тихие часы
+public class ReminderSettings {
+    public static final ReminderSettings DEFAULT = new ReminderSettings(new int[]{0, 3, 7}, -1, -1);
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    // Время отправки по серверу; тихие часы только сдвигают его, если накрывают
+    public static final LocalTime REMINDER_TIME = LocalTime.of(9, 0);
+    private static final int MAX_OFFSETS = 10;
+    private static final int MAX_OFFSET_DAYS = 365;
+
+    private final int[] offsets;
+    private final int quietStart;
+    private final int quietEnd;
+
+    private ReminderSettings(int[] offsets, int quietStart, int quietEnd) {
+        this.offsets = offsets;
+        this.quietStart = quietStart;
+        this.quietEnd = quietEnd;
+    }
+
+    // Формат: "0,1,14,30" и, через пробел, тихие часы "8-10"
+    public static ReminderSettings parse(String input) {
+        String[] parts = input.trim().split("\\s+");
+        if (parts.length > 2) {
+            throw new IllegalArgumentException("Неверный формат. Нужно: 0,3,7 [8-10]");
+        }
+
+        int quietStart = -1;
+        int quietEnd = -1;
+        if (parts.length == 2) {
+            String[] hours = parts[1].split("-");
+            if (hours.length != 2) {
+                throw new IllegalArgumentException("Тихие часы указываются как чч-чч, например 8-10");
+            }
+            quietStart = parseHour(hours[0]);
+            quietEnd = parseHour(hours[1]);
+            if (quietStart == quietEnd) {
+                throw new IllegalArgumentException("Начало и конец тихих часов совпадают");
+            }
+        }
+        return new ReminderSettings(parseOffsets(parts[0]), quietStart, quietEnd);
+    }
+
+    static ReminderSettings fromDatabase(String offsets, int quietStart, int quietEnd) {
+        return new ReminderSettings(parseOffsets(offsets), quietStart, quietEnd);
+    }
+
+    private static int[] parseOffsets(String input) {
+        TreeSet<Integer> offsets = new TreeSet<>();
+        for (String value : input.split(",")) {
+            int offset;
+            try {
+                offset = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Неверное число дней: " + value);
+            }
+            if (offset < 0 || offset > MAX_OFFSET_DAYS) {
+                throw new IllegalArgumentException("Число дней должно быть от 0 до " + MAX_OFFSET_DAYS);
+            }
+            offsets.add(offset);
+        }
+        if (offsets.size() > MAX_OFFSETS) {
+            throw new IllegalArgumentException("Можно указать не больше " + MAX_OFFSETS + " напоминаний");
+        }
+        return offsets.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int parseHour(String value) {
+        int hour;
+        try {
+            hour = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Неверный час: " + value);
+        }
+        if (hour < 0 || hour > 23) {
+            throw new IllegalArgumentException("Час должен быть от 0 до 23");
+        }
+        return hour;
+    }
+
+    public int[] getOffsets() {
+        return offsets.clone();
+    }
+
+    public int getQuietStart() {
+        return quietStart;
+    }
+
+    public int getQuietEnd() {
+        return quietEnd;
+    }
+
+    public boolean hasQuietHours() {
+        return quietStart >= 0;
+    }
+
+    public String offsetsToString() {
+        return String.join(",", Arrays.stream(offsets).mapToObj(String::valueOf).toArray(String[]::new));
+    }
+
+    @Override
+    public String toString() {
+        return offsetsToString() + (hasQuietHours() ? " " + quietStart + "-" + quietEnd : "");
+    }
+
+    // Ближайший день рождения, напоминание о котором еще не отправлено к моменту afterEpochSecond
+    public LocalDate nextOccurrence(LocalDate birthDate, int offsetDays, long afterEpochSecond) {
+        MonthDay monthDay = MonthDay.from(birthDate);
+        int year = Instant.ofEpochSecond(afterEpochSecond).atZone(ZONE).getYear();
+        for (int y = year; ; y++) {
+            LocalDate occurrence = monthDay.atYear(y);
+            if (fireTime(occurrence, offsetDays) > afterEpochSecond) {
+                return occurrence;
+            }
+        }
+    }
+
+    // Время отправки с учетом тихих часов, в секундах epoch. Напоминание переносится на конец
+    // тихих часов в тот же день, поэтому никогда не уходит на следующий день
+    public long fireTime(LocalDate occurrence, int offsetDays) {
+        LocalDateTime fireAt = occurrence.minusDays(offsetDays).atTime(REMINDER_TIME);
+        if (isQuiet(fireAt.getHour())) {
+            // Для окна через полночь (например 5-2) после начала окна конец уже прошел:
+            // отправляем раньше, в quietEnd того же дня, до начала окна
+            fireAt = fireAt.toLocalDate().atTime(quietEnd, 0);
+        }
+        return fireAt.atZone(ZONE).toEpochSecond();
+    }
+
+    private boolean isQuiet(int hour) {
+        if (!hasQuietHours()) {
+            return false;
+        }
+        return quietStart < quietEnd
+                ? hour >= quietStart && hour < quietEnd
+                : hour >= quietStart || hour < quietEnd;
+    }
+}